@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.loadtest;
+
+import net.skobow.rest.InMemoryUserTokenService;
+import net.skobow.rest.OAuth2RestClient;
+import net.skobow.rest.UserToken;
+import net.skobow.rest.oauth2.ClientCredentialsGrant;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives {@link OAuth2RestClient} against the {@link StubServer} and reports throughput, latency percentiles, token
+ * endpoint load and connection pool usage.
+ */
+public final class LoadTest {
+
+    private static final PrintStream OUT = System.out;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LoadTestConfig config;
+    private final OAuth2RestClient client;
+    private final URI resourceUri;
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private LoadTest(final LoadTestConfig config, final OAuth2RestClient client, final URI resourceUri, final PoolingHttpClientConnectionManager connectionManager) {
+        this.config = config;
+        this.client = client;
+        this.resourceUri = resourceUri;
+        this.connectionManager = connectionManager;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final LoadTestConfig config = new LoadTestConfig();
+        OUT.println("Load test configuration: " + config);
+
+        try (StubServer stubServer = new StubServer(config)) {
+            stubServer.start();
+
+            final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(config.getMaxConnections());
+            connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+
+            try (CloseableHttpClient httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager).build()) {
+                final RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+                final ClientCredentialsGrant grant = new ClientCredentialsGrant(
+                        "load-test",
+                        "secret".toCharArray(),
+                        "scope",
+                        stubServer.getTokenUri(),
+                        restTemplate,
+                        new InMemoryUserTokenService(),
+                        LoadTest::decodeToken);
+                final OAuth2RestClient client = new OAuth2RestClient(restTemplate, grant);
+                final LoadTest loadTest = new LoadTest(config, client, stubServer.getResourceUri(), connectionManager);
+
+                if (config.getWarmupSeconds() > 0) {
+                    OUT.println("Warming up for " + config.getWarmupSeconds() + " s");
+                    loadTest.run(config.getWarmupSeconds());
+                    stubServer.resetCounters();
+                }
+
+                OUT.println("Running for " + config.getDurationSeconds() + " s");
+                final Result result = loadTest.run(config.getDurationSeconds());
+                result.report(config, stubServer);
+            }
+        }
+    }
+
+    private Result run(final int seconds) throws InterruptedException {
+        final Result result = new Result();
+        final ScheduledExecutorService poolSampler = Executors.newSingleThreadScheduledExecutor();
+        poolSampler.scheduleAtFixedRate(() -> result.sample(connectionManager.getTotalStats()), 0, 10, TimeUnit.MILLISECONDS);
+
+        final ExecutorService workers = workers();
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < config.getThreads(); i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    call(result);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        result.elapsedNanos = System.nanoTime() - start;
+
+        poolSampler.shutdownNow();
+        return result;
+    }
+
+    private void call(final Result result) {
+        final long start = System.nanoTime();
+        try {
+            client.get(resourceUri, Object.class);
+        } catch (final RestClientResponseException e) {
+            result.error("HTTP " + e.getRawStatusCode());
+        } catch (final RuntimeException e) {
+            result.error(e.getClass().getSimpleName());
+        } finally {
+            result.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    private ExecutorService workers() {
+        if (!config.isVirtualThreads()) {
+            return Executors.newFixedThreadPool(config.getThreads());
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or later", e);
+        }
+    }
+
+    private static UserToken decodeToken(final ResponseEntity<?> httpResponse) {
+        final Map<?, ?> body = (Map<?, ?>) httpResponse.getBody();
+        final long expiresIn = ((Number) body.get("expires_in")).longValue();
+        return new UserToken(
+                (String) body.get("access_token"),
+                null,
+                (String) body.get("token_type"),
+                LocalDateTime.now().plusSeconds(expiresIn));
+    }
+
+    private static final class Result {
+
+        private final Recorder latencies = new Recorder(3);
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private final AtomicInteger maxLeased = new AtomicInteger();
+        private final AtomicInteger maxPending = new AtomicInteger();
+        private long elapsedNanos;
+
+        private void error(final String type) {
+            errors.computeIfAbsent(type, key -> new LongAdder()).increment();
+        }
+
+        private void sample(final PoolStats stats) {
+            maxLeased.accumulateAndGet(stats.getLeased(), Math::max);
+            maxPending.accumulateAndGet(stats.getPending(), Math::max);
+        }
+
+        private void report(final LoadTestConfig config, final StubServer stubServer) {
+            final Histogram histogram = latencies.getIntervalHistogram();
+            final double seconds = elapsedNanos / 1e9;
+
+            OUT.println();
+            OUT.printf("Requests:         %d (%.1f req/s)%n", histogram.getTotalCount(), histogram.getTotalCount() / seconds);
+            OUT.printf("Errors:           %s%n", errors.isEmpty() ? "none" : new TreeMap<>(errors));
+            OUT.printf("Latency (ms):     p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f mean=%.2f%n",
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()),
+                    histogram.getMean() / MICROS_PER_MILLI);
+            OUT.printf("Token requests:   %d (%.2f/s, %d injected failures)%n",
+                    stubServer.getTokenRequests(), stubServer.getTokenRequests() / seconds, stubServer.getTokenErrors());
+            OUT.printf("Resource server:  %d requests, %d rejected tokens, %d injected failures%n",
+                    stubServer.getResourceRequests(), stubServer.getRejectedTokens(), stubServer.getResourceErrors());
+            OUT.printf("Connections:      max leased %d of %d (%d per route), max pending %d%n",
+                    maxLeased.get(), config.getMaxConnections(), config.getMaxConnectionsPerRoute(), maxPending.get());
+            OUT.println();
+            histogram.outputPercentileDistribution(OUT, MICROS_PER_MILLI);
+        }
+
+        private static double millis(final long micros) {
+            return micros / MICROS_PER_MILLI;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.loadtest;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties.
+ */
+public class LoadTestConfig {
+
+    private static final String PREFIX = "loadtest.";
+
+    private final int threads = intProperty("threads", 50);
+    private final boolean virtualThreads = Boolean.parseBoolean(System.getProperty(PREFIX + "virtualThreads", "false"));
+    private final int durationSeconds = intProperty("durationSeconds", 30);
+    private final int warmupSeconds = intProperty("warmupSeconds", 5);
+    private final int maxConnections = intProperty("maxConnections", 20);
+    private final int maxConnectionsPerRoute = intProperty("maxConnectionsPerRoute", 2);
+    private final int tokenLatencyMillis = intProperty("tokenLatencyMillis", 50);
+    private final int tokenLifetimeSeconds = intProperty("tokenLifetimeSeconds", 5);
+    private final double tokenErrorRate = doubleProperty("tokenErrorRate", 0.0);
+    private final int resourceLatencyMillis = intProperty("resourceLatencyMillis", 10);
+    private final double resourceErrorRate = doubleProperty("resourceErrorRate", 0.0);
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public int getTokenLatencyMillis() {
+        return tokenLatencyMillis;
+    }
+
+    public int getTokenLifetimeSeconds() {
+        return tokenLifetimeSeconds;
+    }
+
+    public double getTokenErrorRate() {
+        return tokenErrorRate;
+    }
+
+    public int getResourceLatencyMillis() {
+        return resourceLatencyMillis;
+    }
+
+    public double getResourceErrorRate() {
+        return resourceErrorRate;
+    }
+
+    @Override
+    public String toString() {
+        return "threads=" + threads
+                + ", virtualThreads=" + virtualThreads
+                + ", durationSeconds=" + durationSeconds
+                + ", warmupSeconds=" + warmupSeconds
+                + ", maxConnections=" + maxConnections
+                + ", maxConnectionsPerRoute=" + maxConnectionsPerRoute
+                + ", tokenLatencyMillis=" + tokenLatencyMillis
+                + ", tokenLifetimeSeconds=" + tokenLifetimeSeconds
+                + ", tokenErrorRate=" + tokenErrorRate
+                + ", resourceLatencyMillis=" + resourceLatencyMillis
+                + ", resourceErrorRate=" + resourceErrorRate;
+    }
+
+    private static int intProperty(final String name, final int defaultValue) {
+        return Integer.parseInt(System.getProperty(PREFIX + name, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleProperty(final String name, final double defaultValue) {
+        return Double.parseDouble(System.getProperty(PREFIX + name, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process token endpoint and resource server. Tokens carry their expiry so the resource server rejects expired ones
+ * with 401, making stale token use visible in the results.
+ */
+public class StubServer implements AutoCloseable {
+
+    private static final String TOKEN_PATH = "/token";
+    private static final String RESOURCE_PATH = "/resource";
+    private static final String BEARER = "Bearer ";
+
+    private final LoadTestConfig config;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final AtomicLong tokenRequests = new AtomicLong();
+    private final AtomicLong tokenErrors = new AtomicLong();
+    private final AtomicLong resourceRequests = new AtomicLong();
+    private final AtomicLong resourceErrors = new AtomicLong();
+    private final AtomicLong rejectedTokens = new AtomicLong();
+
+    public StubServer(final LoadTestConfig config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(TOKEN_PATH, this::handleTokenRequest);
+        server.createContext(RESOURCE_PATH, this::handleResourceRequest);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public URI getTokenUri() {
+        return uri(TOKEN_PATH);
+    }
+
+    public URI getResourceUri() {
+        return uri(RESOURCE_PATH);
+    }
+
+    public void resetCounters() {
+        tokenRequests.set(0);
+        tokenErrors.set(0);
+        resourceRequests.set(0);
+        resourceErrors.set(0);
+        rejectedTokens.set(0);
+    }
+
+    public long getTokenRequests() {
+        return tokenRequests.get();
+    }
+
+    public long getTokenErrors() {
+        return tokenErrors.get();
+    }
+
+    public long getResourceRequests() {
+        return resourceRequests.get();
+    }
+
+    public long getResourceErrors() {
+        return resourceErrors.get();
+    }
+
+    public long getRejectedTokens() {
+        return rejectedTokens.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleTokenRequest(final HttpExchange exchange) throws IOException {
+        final long requestNumber = tokenRequests.incrementAndGet();
+        drain(exchange);
+        sleep(config.getTokenLatencyMillis());
+
+        if (shouldFail(config.getTokenErrorRate())) {
+            tokenErrors.incrementAndGet();
+            respond(exchange, 503, "text/plain", "injected failure");
+            return;
+        }
+
+        final long lifetimeSeconds = config.getTokenLifetimeSeconds();
+        final long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(lifetimeSeconds);
+        final String accessToken = "token-" + requestNumber + "-" + expiresAt;
+        respond(exchange, 200, "application/json", "{\"access_token\":\"" + accessToken + "\","
+                + "\"token_type\":\"bearer\","
+                + "\"expires_in\":" + lifetimeSeconds + "}");
+    }
+
+    private void handleResourceRequest(final HttpExchange exchange) throws IOException {
+        resourceRequests.incrementAndGet();
+        drain(exchange);
+
+        if (!isValid(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            rejectedTokens.incrementAndGet();
+            respond(exchange, 401, "text/plain", "invalid token");
+            return;
+        }
+
+        sleep(config.getResourceLatencyMillis());
+
+        if (shouldFail(config.getResourceErrorRate())) {
+            resourceErrors.incrementAndGet();
+            respond(exchange, 500, "text/plain", "injected failure");
+            return;
+        }
+
+        respond(exchange, 200, "application/json", "{\"status\":\"ok\"}");
+    }
+
+    private static boolean isValid(final String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return false;
+        }
+        final String token = authorization.substring(BEARER.length());
+        final int separator = token.lastIndexOf('-');
+        if (separator < 0) {
+            return false;
+        }
+        try {
+            return Long.parseLong(token.substring(separator + 1)) > System.currentTimeMillis();
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean shouldFail(final double errorRate) {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    private static void drain(final HttpExchange exchange) throws IOException {
+        final byte[] buffer = new byte[1024];
+        try (InputStream body = exchange.getRequestBody()) {
+            while (body.read(buffer) >= 0) {
+                // discard request body
+            }
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String contentType, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private static void sleep(final int millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private URI uri(final String path) {
+        final InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort() + path);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2.autoconfiguration;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Defers creating the SSL context and HTTP client until the first request is made.
+ */
+class LazyClientHttpRequestFactory implements ClientHttpRequestFactory, DisposableBean {
+
+    private final Supplier<ClientHttpRequestFactory> factorySupplier;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile ClientHttpRequestFactory delegate;
+
+    LazyClientHttpRequestFactory(final Supplier<ClientHttpRequestFactory> factorySupplier) {
+        this.factorySupplier = factorySupplier;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(final URI uri, final HttpMethod httpMethod) throws IOException {
+        return getDelegate().createRequest(uri, httpMethod);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        final ClientHttpRequestFactory factory = delegate;
+        if (factory instanceof DisposableBean) {
+            ((DisposableBean) factory).destroy();
+        }
+    }
+
+    /**
+     * @return the underlying factory, or {@code null} if no request has been made yet
+     */
+    ClientHttpRequestFactory getInitializedDelegate() {
+        return delegate;
+    }
+
+    private ClientHttpRequestFactory getDelegate() {
+        ClientHttpRequestFactory factory = delegate;
+        if (factory == null) {
+            lock.lock();
+            try {
+                factory = delegate;
+                if (factory == null) {
+                    factory = factorySupplier.get();
+                    delegate = factory;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2.autoconfiguration;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps environment variables such as {@code OAUTH2_CLIENT_CLIENT_ID} working. They used to resolve the underscore keys
+ * read through {@code @Value}, whereas relaxed binding maps them to {@code oauth2.client.client.id}. The mapped values
+ * take precedence over configuration files, just like the environment variables did before.
+ */
+public class LegacyEnvironmentVariablesPostProcessor implements EnvironmentPostProcessor {
+
+    static final String PROPERTY_SOURCE_NAME = "oauth2ClientLegacyEnvironmentVariables";
+
+    private static final String[][] LEGACY_KEYS = {
+            {"oauth2.client.client_id", "oauth2.client.client-id"},
+            {"oauth2.client.client_secret", "oauth2.client.client-secret"},
+            {"oauth2.client.token_uri", "oauth2.client.token-uri"}
+    };
+
+    @Override
+    public void postProcessEnvironment(final ConfigurableEnvironment environment, final SpringApplication application) {
+        final PropertySource<?> systemEnvironment = environment.getPropertySources()
+                .get(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME);
+        if (systemEnvironment == null) {
+            return;
+        }
+
+        final Map<String, Object> properties = new HashMap<>();
+        for (final String[] keys : LEGACY_KEYS) {
+            final Object value = systemEnvironment.getProperty(keys[0]);
+            if (value != null) {
+                properties.put(keys[1], value);
+            }
+        }
+        if (!properties.isEmpty()) {
+            environment.getPropertySources().addAfter(
+                    StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+                    new MapPropertySource(PROPERTY_SOURCE_NAME, properties));
+        }
+    }
+}
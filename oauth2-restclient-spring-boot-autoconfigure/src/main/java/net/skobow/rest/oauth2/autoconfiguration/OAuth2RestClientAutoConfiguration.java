@@ -24,65 +24,127 @@
 
 package net.skobow.rest.oauth2.autoconfiguration;
 
-import net.skobow.rest.InMemoryUserTokenService;
 import net.skobow.rest.OAuth2RestClient;
+import net.skobow.rest.StripedUserTokenService;
 import net.skobow.rest.UserTokenService;
 import net.skobow.rest.oauth2.AccessTokenDecoder;
 import net.skobow.rest.oauth2.ClientCredentialsGrant;
 import net.skobow.rest.oauth2.OAuth2Grant;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.springframework.beans.factory.annotation.Value;
+import net.skobow.rest.observation.RequestObserver;
+import net.skobow.rest.observation.SlowRequestLogger;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.client.RestTemplate;
 
 import javax.net.ssl.SSLContext;
-import java.net.URI;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executors;
 
+/**
+ * All beans are created on first use only, and the SSL context and HTTP client only once the first request is made.
+ */
 @Configuration
+@Lazy
+@ConditionalOnProperty(prefix = "oauth2.client", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(OAuth2RestClientProperties.class)
 public class OAuth2RestClientAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public OAuth2RestClient oAuth2RestClient(final OAuth2Grant oAuth2Grant, final RestTemplate oAuth2RestTemplate) {
-        return new OAuth2RestClient(oAuth2RestTemplate, oAuth2Grant);
+    public OAuth2RestClient oAuth2RestClient(
+            final OAuth2Grant oAuth2Grant,
+            final RestTemplate oAuth2RestTemplate,
+            final RequestObserver requestObserver,
+            final AsyncCallExecutor oAuth2AsyncCallExecutor) {
+        final OAuth2RestClient client = new OAuth2RestClient(oAuth2RestTemplate, oAuth2Grant, requestObserver);
+        client.setExecutor(oAuth2AsyncCallExecutor.getExecutorService());
+        return client;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public AsyncCallExecutor oAuth2AsyncCallExecutor(final OAuth2RestClientProperties properties) {
+        if (properties.isVirtualThreads()) {
+            return new AsyncCallExecutor(VirtualThreads.newVirtualThreadPerTaskExecutor());
+        }
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oauth2-rest-client-");
+        threadFactory.setDaemon(true);
+        return new AsyncCallExecutor(Executors.newFixedThreadPool(properties.getAsyncPoolSize(), threadFactory));
     }
 
     @Bean
     @ConditionalOnMissingBean
     public OAuth2Grant defaultOAuth2Grant(
-            @Value("${oauth2.client.client_id:client_id}") final String clientId,
-            @Value("${oauth2.client.client_secret:@null}") final char[] clientSecret,
-            @Value("${oauth2.client.scope:@null}") final String scope,
-            @Value("${oauth2.client.token_uri:http://localhost/token}") final URI tokenUri,
-            final RestTemplate restTemplate,
+            final OAuth2RestClientProperties properties,
+            final RestTemplate oAuth2RestTemplate,
             final UserTokenService userTokenService,
             final AccessTokenDecoder accessTokenDecoder) {
-        return new ClientCredentialsGrant(clientId, clientSecret, scope, tokenUri, restTemplate, userTokenService, accessTokenDecoder);
+        final char[] clientSecret = properties.getClientSecret() != null
+                ? properties.getClientSecret().toCharArray()
+                : new char[0];
+        return new ClientCredentialsGrant(
+                properties.getClientId(),
+                clientSecret,
+                properties.getScope(),
+                properties.getTokenUri(),
+                oAuth2RestTemplate,
+                userTokenService,
+                accessTokenDecoder);
+    }
+
+    @Bean
+    public static ObservingGrantPostProcessor observingGrantPostProcessor(final ObjectProvider<RequestObserver> requestObserver) {
+        return new ObservingGrantPostProcessor(requestObserver);
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public UserTokenService defaultUserTokenService() {
-        return new InMemoryUserTokenService();
+    public RequestObserver defaultRequestObserver(final OAuth2RestClientProperties properties) {
+        return properties.getObservation().getSlowRequestThreshold() != null
+                ? new SlowRequestLogger(properties.getObservation().getSlowRequestThreshold())
+                : RequestObserver.NOOP;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public UserTokenService defaultUserTokenService(final OAuth2RestClientProperties properties) {
+        return new StripedUserTokenService(
+                properties.getTokenCache().getMaximumSize(),
+                properties.getTokenCache().getTimeToLive());
     }
 
     @Bean
     @ConditionalOnMissingBean(name = "oAuth2RestTemplate")
-    public RestTemplate oAuth2RestTemplate() throws NoSuchAlgorithmException, KeyManagementException {
-        // Enforce TLSv1.2 over TLSv1.3 due to Bug JDK-8211806 in JDK 11.0.1
-        // see https://bugs.openjdk.java.net/browse/JDK-8211806 for more information
-        final SSLContext context = SSLContext.getInstance("TLSv1.2");
-        context.init(null, null, null);
+    public RestTemplate oAuth2RestTemplate(final ClientHttpRequestFactory oAuth2ClientHttpRequestFactory) {
+        return new RestTemplate(oAuth2ClientHttpRequestFactory);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "oAuth2ClientHttpRequestFactory")
+    public ClientHttpRequestFactory oAuth2ClientHttpRequestFactory(final OAuth2RestClientProperties properties) {
+        // Apache HttpClient 4.5 may block inside synchronized blocks, pinning virtual threads to their carrier
+        if (properties.isVirtualThreads()) {
+            return new LazyClientHttpRequestFactory(() -> new SslContextClientHttpRequestFactory(tlsContext()));
+        }
+        return new LazyClientHttpRequestFactory(() -> HttpComponentsRequestFactories.create(tlsContext()));
+    }
 
-        final CloseableHttpClient httpClient = HttpClientBuilder.create().setSSLContext(context)
-                .build();
-        final HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
-        return new RestTemplate(factory);
+    private static SSLContext tlsContext() {
+        try {
+            // Enforce TLSv1.2 over TLSv1.3 due to Bug JDK-8211806 in JDK 11.0.1
+            // see https://bugs.openjdk.java.net/browse/JDK-8211806 for more information
+            final SSLContext context = SSLContext.getInstance("TLSv1.2");
+            context.init(null, null, null);
+            return context;
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize TLSv1.2 SSL context", e);
+        }
     }
 }
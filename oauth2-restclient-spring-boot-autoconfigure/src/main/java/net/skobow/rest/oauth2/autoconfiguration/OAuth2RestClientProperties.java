@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2.autoconfiguration;
+
+import net.skobow.rest.StripedUserTokenService;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "oauth2.client")
+public class OAuth2RestClientProperties {
+
+    /**
+     * Whether to auto-configure the OAuth2 REST client.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Client id sent to the token endpoint.
+     */
+    private String clientId = "client_id";
+
+    /**
+     * Client secret sent to the token endpoint.
+     */
+    private String clientSecret;
+
+    /**
+     * Scope requested from the token endpoint.
+     */
+    private String scope;
+
+    /**
+     * URI of the token endpoint.
+     */
+    private URI tokenUri = URI.create("http://localhost/token");
+
+    /**
+     * Whether to run asynchronous calls on virtual threads and use a transport that does not pin them. Requires JDK 21.
+     */
+    private boolean virtualThreads;
+
+    /**
+     * Number of threads running asynchronous calls unless virtual threads are enabled.
+     */
+    private int asyncPoolSize = 8;
+
+    private final TokenCache tokenCache = new TokenCache();
+
+    private final Observation observation = new Observation();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(final String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getClientSecret() {
+        return clientSecret;
+    }
+
+    public void setClientSecret(final String clientSecret) {
+        this.clientSecret = clientSecret;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(final String scope) {
+        this.scope = scope;
+    }
+
+    public URI getTokenUri() {
+        return tokenUri;
+    }
+
+    public void setTokenUri(final URI tokenUri) {
+        this.tokenUri = tokenUri;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getAsyncPoolSize() {
+        return asyncPoolSize;
+    }
+
+    public void setAsyncPoolSize(final int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    public TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    public Observation getObservation() {
+        return observation;
+    }
+
+    public static class TokenCache {
+
+        /**
+         * Maximum number of cached tokens.
+         */
+        private int maximumSize = StripedUserTokenService.DEFAULT_MAXIMUM_SIZE;
+
+        /**
+         * Time after which a cached token is evicted even if it has not expired yet.
+         */
+        private Duration timeToLive = StripedUserTokenService.DEFAULT_TIME_TO_LIVE;
+
+        public int getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(final int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(final Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    public static class Observation {
+
+        /**
+         * Duration above which a timing breakdown of a call is logged. Slow calls are not logged if not set.
+         */
+        private Duration slowRequestThreshold;
+
+        public Duration getSlowRequestThreshold() {
+            return slowRequestThreshold;
+        }
+
+        public void setSlowRequestThreshold(final Duration slowRequestThreshold) {
+            this.slowRequestThreshold = slowRequestThreshold;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2.autoconfiguration;
+
+import net.skobow.rest.HeadersEnhancer;
+import net.skobow.rest.oauth2.AbstractOAuth2Grant;
+import net.skobow.rest.observation.ObservationHeadersEnhancer;
+import net.skobow.rest.observation.RequestObserver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Reports the token requests of every grant in the context, including user defined ones, to the {@link RequestObserver}
+ * bean and propagates the trace context with their requests. Observers and enhancers set on a grant are kept.
+ */
+class ObservingGrantPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<RequestObserver> requestObserver;
+
+    ObservingGrantPostProcessor(final ObjectProvider<RequestObserver> requestObserver) {
+        this.requestObserver = requestObserver;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (bean instanceof AbstractOAuth2Grant) {
+            final AbstractOAuth2Grant grant = (AbstractOAuth2Grant) bean;
+            if (grant.getRequestObserver() == RequestObserver.NOOP) {
+                grant.setRequestObserver(requestObserver.getIfAvailable());
+            }
+            grant.setAuthorizationHeadersEnhancer(observing(grant.getAuthorizationHeadersEnhancer()));
+            grant.setRequestHeadersEnhancer(observing(grant.getRequestHeadersEnhancer()));
+        }
+        return bean;
+    }
+
+    private static HeadersEnhancer observing(final HeadersEnhancer enhancer) {
+        return enhancer instanceof ObservationHeadersEnhancer
+                ? enhancer
+                : new ObservationHeadersEnhancer(enhancer);
+    }
+}
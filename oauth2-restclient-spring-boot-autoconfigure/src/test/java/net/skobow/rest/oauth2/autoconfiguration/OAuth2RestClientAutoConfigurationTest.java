@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2.autoconfiguration;
+
+import net.skobow.rest.InMemoryUserTokenService;
+import net.skobow.rest.OAuth2RestClient;
+import net.skobow.rest.oauth2.AccessTokenDecoder;
+import net.skobow.rest.oauth2.OAuth2Grant;
+import net.skobow.rest.oauth2.TokenExchangeGrant;
+import net.skobow.rest.observation.ObservationHeadersEnhancer;
+import net.skobow.rest.observation.RequestObserver;
+import net.skobow.rest.observation.SlowRequestLogger;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OAuth2RestClientAutoConfigurationTest {
+
+    private static final URI TOKEN_URI = URI.create("https://idp.example.com/token");
+    private static final URI RESOURCE_URI = URI.create("https://api.example.com/");
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(OAuth2RestClientAutoConfiguration.class))
+            .withUserConfiguration(AccessTokenDecoderConfiguration.class);
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void client_should_be_configured_by_default() {
+        contextRunner.run(context -> assertThat(context)
+                .hasSingleBean(OAuth2RestClient.class)
+                .hasSingleBean(OAuth2Grant.class)
+                .hasBean("oAuth2RestTemplate"));
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void nothing_should_be_configured_when_disabled() {
+        contextRunner
+                .withPropertyValues("oauth2.client.enabled=false")
+                .run(context -> assertThat(context)
+                        .doesNotHaveBean(OAuth2RestClient.class)
+                        .doesNotHaveBean(OAuth2Grant.class)
+                        .doesNotHaveBean(RestTemplate.class)
+                        .doesNotHaveBean(OAuth2RestClientProperties.class));
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void kebab_case_properties_should_be_bound() {
+        contextRunner
+                .withPropertyValues(
+                        "oauth2.client.client-id=my-client",
+                        "oauth2.client.client-secret=secret",
+                        "oauth2.client.scope=api",
+                        "oauth2.client.token-uri=" + TOKEN_URI,
+                        "oauth2.client.token-cache.maximum-size=42",
+                        "oauth2.client.observation.slow-request-threshold=2s")
+                .run(context -> {
+                    final OAuth2RestClientProperties properties = context.getBean(OAuth2RestClientProperties.class);
+                    assertThat(properties.getClientId()).isEqualTo("my-client");
+                    assertThat(properties.getClientSecret()).isEqualTo("secret");
+                    assertThat(properties.getScope()).isEqualTo("api");
+                    assertThat(properties.getTokenUri()).isEqualTo(TOKEN_URI);
+                    assertThat(properties.getTokenCache().getMaximumSize()).isEqualTo(42);
+                    assertThat(properties.getObservation().getSlowRequestThreshold()).isEqualTo(Duration.ofSeconds(2));
+                });
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void legacy_environment_variables_should_be_bound() {
+        final Map<String, Object> environmentVariables = new HashMap<>();
+        environmentVariables.put("OAUTH2_CLIENT_CLIENT_ID", "my-client");
+        environmentVariables.put("OAUTH2_CLIENT_CLIENT_SECRET", "secret");
+        environmentVariables.put("OAUTH2_CLIENT_SCOPE", "api");
+        environmentVariables.put("OAUTH2_CLIENT_TOKEN_URI", TOKEN_URI.toString());
+
+        contextRunner
+                .withInitializer(context -> applyEnvironmentVariables(context.getEnvironment(), environmentVariables))
+                .run(context -> {
+                    final OAuth2RestClientProperties properties = context.getBean(OAuth2RestClientProperties.class);
+                    assertThat(properties.getClientId()).isEqualTo("my-client");
+                    assertThat(properties.getClientSecret()).isEqualTo("secret");
+                    assertThat(properties.getScope()).isEqualTo("api");
+                    assertThat(properties.getTokenUri()).isEqualTo(TOKEN_URI);
+                });
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void user_defined_grants_should_be_observed() {
+        contextRunner
+                .withUserConfiguration(TokenExchangeGrantConfiguration.class)
+                .withPropertyValues("oauth2.client.observation.slow-request-threshold=2s")
+                .run(context -> {
+                    final TokenExchangeGrant grant = context.getBean(TokenExchangeGrant.class);
+                    assertThat(grant.getRequestObserver()).isSameAs(context.getBean(RequestObserver.class));
+                    assertThat(grant.getRequestObserver()).isInstanceOf(SlowRequestLogger.class);
+                    assertThat(grant.getAuthorizationHeadersEnhancer()).isInstanceOf(ObservationHeadersEnhancer.class);
+                    assertThat(grant.getRequestHeadersEnhancer()).isInstanceOf(ObservationHeadersEnhancer.class);
+                });
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void async_calls_should_run_on_a_dedicated_pool_closed_with_the_context() {
+        final AtomicReference<ExecutorService> executor = new AtomicReference<>();
+
+        contextRunner.run(context -> {
+            final OAuth2RestClient client = context.getBean(OAuth2RestClient.class);
+            executor.set(context.getBean(AsyncCallExecutor.class).getExecutorService());
+            assertThat(client.getExecutor()).isSameAs(executor.get()).isNotSameAs(ForkJoinPool.commonPool());
+        });
+
+        assertThat(executor.get().isShutdown()).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void http_client_should_not_be_created_before_the_first_request() {
+        contextRunner.run(context -> {
+            context.getBean(OAuth2RestClient.class);
+            final LazyClientHttpRequestFactory requestFactory =
+                    context.getBean("oAuth2ClientHttpRequestFactory", LazyClientHttpRequestFactory.class);
+            assertThat(requestFactory.getInitializedDelegate()).isNull();
+
+            requestFactory.createRequest(RESOURCE_URI, HttpMethod.GET);
+
+            assertThat(requestFactory.getInitializedDelegate()).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+        });
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void virtual_threads_should_use_the_http_url_connection_transport() {
+        contextRunner
+                .withPropertyValues("oauth2.client.virtual-threads=true")
+                .run(context -> {
+                    final LazyClientHttpRequestFactory requestFactory =
+                            context.getBean("oAuth2ClientHttpRequestFactory", LazyClientHttpRequestFactory.class);
+
+                    requestFactory.createRequest(RESOURCE_URI, HttpMethod.GET);
+
+                    assertThat(requestFactory.getInitializedDelegate()).isInstanceOf(SslContextClientHttpRequestFactory.class);
+                });
+    }
+
+    private static void applyEnvironmentVariables(final ConfigurableEnvironment environment, final Map<String, Object> variables) {
+        environment.getPropertySources().replace(
+                StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+                new SystemEnvironmentPropertySource(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME, variables));
+        new LegacyEnvironmentVariablesPostProcessor().postProcessEnvironment(environment, null);
+    }
+
+    @Configuration
+    static class AccessTokenDecoderConfiguration {
+
+        @Bean
+        public AccessTokenDecoder<?> accessTokenDecoder() {
+            return httpResponse -> null;
+        }
+    }
+
+    @Configuration
+    static class TokenExchangeGrantConfiguration {
+
+        @Bean
+        public TokenExchangeGrant tokenExchangeGrant() {
+            return new TokenExchangeGrant(
+                    "client",
+                    new char[0],
+                    null,
+                    TOKEN_URI,
+                    new RestTemplate(),
+                    new InMemoryUserTokenService(),
+                    httpResponse -> null,
+                    () -> null);
+        }
+    }
+}
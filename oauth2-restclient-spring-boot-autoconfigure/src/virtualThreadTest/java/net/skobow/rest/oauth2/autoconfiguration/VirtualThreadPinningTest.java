@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2.autoconfiguration;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.skobow.rest.OAuth2RestClient;
+import net.skobow.rest.UserToken;
+import net.skobow.rest.oauth2.AccessTokenDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the client auto-configured with {@code oauth2.client.virtual-threads=true} against a local server while tokens
+ * keep expiring, and asserts that no carrier thread gets pinned.
+ */
+public class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int THREADS = 200;
+    private static final int CALLS_PER_THREAD = 20;
+    private static final Duration SERVER_LATENCY = Duration.ofMillis(5);
+    private static final Duration TOKEN_LIFETIME = Duration.ofMillis(20);
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/token", exchange -> {
+            tokenRequests.incrementAndGet();
+            respond(exchange);
+        });
+        server.createContext("/resource", this::respond);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void concurrent_token_expiry_should_not_pin_virtual_threads() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(OAuth2RestClientAutoConfiguration.class))
+                .withUserConfiguration(ExpiringTokenConfiguration.class)
+                .withPropertyValues(
+                        "oauth2.client.virtual-threads=true",
+                        "oauth2.client.token-uri=" + uri("/token"),
+                        // exercises the slow request logger without logging anything
+                        "oauth2.client.observation.slow-request-threshold=1m")
+                .run(context -> assertNoPinning(context.getBean(OAuth2RestClient.class)));
+    }
+
+    private void assertNoPinning(final OAuth2RestClient client) throws Exception {
+        final URI resourceUri = uri("/resource");
+
+        // initialize classes and the connection cache up front so that only steady state behaviour is recorded
+        client.get(resourceUri, Object.class);
+        tokenRequests.set(0);
+
+        final Path recordingFile = Files.createTempFile("virtual-thread-pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                final List<Future<?>> futures = IntStream.range(0, THREADS)
+                        .mapToObj(i -> executor.submit(() -> {
+                            for (int call = 0; call < CALLS_PER_THREAD; call++) {
+                                client.getAsync(resourceUri, null, Object.class).join();
+                            }
+                        }))
+                        .collect(Collectors.toList());
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+            }
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        final List<RecordedEvent> pinnedEvents = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> PINNED_EVENT.equals(event.getEventType().getName()))
+                .collect(Collectors.toList());
+        Files.delete(recordingFile);
+
+        assertThat(pinnedEvents).isEmpty();
+        assertThat(tokenRequests.get()).isGreaterThan(1).isLessThan(THREADS * CALLS_PER_THREAD);
+    }
+
+    private void respond(final HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+        try {
+            Thread.sleep(SERVER_LATENCY);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+    }
+
+    private URI uri(final String path) {
+        final InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort() + path);
+    }
+
+    @Configuration
+    static class ExpiringTokenConfiguration {
+
+        @Bean
+        public AccessTokenDecoder<?> accessTokenDecoder() {
+            return httpResponse -> new UserToken("token", null, "bearer", LocalDateTime.now().plus(TOKEN_LIFETIME));
+        }
+    }
+}
@@ -24,20 +24,24 @@
 
 package net.skobow.rest;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static org.springframework.util.Assert.notNull;
 
 public class InMemoryUserTokenService implements UserTokenService {
 
-    private UserToken userToken;
+    private final Map<String, UserToken> userTokens = new ConcurrentHashMap<>();
 
     @Override
     public UserToken getUserToken(final String username) {
-        return userToken;
+        return userTokens.get(username);
     }
 
     @Override
     public void setUserToken(final String username, final UserToken userToken) {
+        notNull(username, "Username may not be null");
         notNull(userToken, "User token may not be null or empty");
-        this.userToken = userToken;
+        userTokens.put(username, userToken);
     }
 }
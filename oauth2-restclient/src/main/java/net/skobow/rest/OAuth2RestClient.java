@@ -26,6 +26,10 @@ package net.skobow.rest;
 
 
 import net.skobow.rest.oauth2.OAuth2Grant;
+import net.skobow.rest.observation.RequestObservation;
+import net.skobow.rest.observation.RequestObservations;
+import net.skobow.rest.observation.RequestObserver;
+import net.skobow.rest.observation.RequestPhase;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.RequestEntity;
@@ -33,15 +37,29 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static org.springframework.util.Assert.state;
 
 public class OAuth2RestClient {
 
     private final RestTemplate restTemplate;
     private final OAuth2Grant oAuth2Grant;
+    private final RequestObserver requestObserver;
+    private Executor executor;
 
     public OAuth2RestClient(final RestTemplate restTemplate, final OAuth2Grant oAuth2Grant) {
+        this(restTemplate, oAuth2Grant, RequestObserver.NOOP);
+    }
+
+    public OAuth2RestClient(final RestTemplate restTemplate, final OAuth2Grant oAuth2Grant, final RequestObserver requestObserver) {
         this.restTemplate = restTemplate;
         this.oAuth2Grant = oAuth2Grant;
+        this.requestObserver = requestObserver != null
+                ? requestObserver
+                : RequestObserver.NOOP;
     }
 
     public <T> ResponseEntity<T> get(final String uri, final HttpHeaders headers, final Class<T> responseType) {
@@ -57,8 +75,15 @@ public class OAuth2RestClient {
     }
 
     public <T> ResponseEntity<T> get(final URI uri, final HttpHeaders httpHeaders, final Class<T> responseType) {
-        final RequestEntity request = oAuth2Grant.getRequest(uri, httpHeaders, HttpMethod.GET);
-        return exchange(request, responseType);
+        return exchange(HttpMethod.GET, uri, () -> oAuth2Grant.getRequest(uri, httpHeaders, HttpMethod.GET), responseType);
+    }
+
+    /**
+     * Acquires the token and builds the request on the calling thread, so that thread bound state such as the current
+     * user is available to the grant. Only the HTTP exchange runs on the executor.
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> getAsync(final URI uri, final HttpHeaders httpHeaders, final Class<T> responseType) {
+        return exchangeAsync(HttpMethod.GET, uri, () -> oAuth2Grant.getRequest(uri, httpHeaders, HttpMethod.GET), responseType);
     }
 
     public <T,K> ResponseEntity<T> post(final String uri, final Class<T> responseType, final K body, final Class<K> bodyType) {
@@ -74,15 +99,93 @@ public class OAuth2RestClient {
     }
 
     public <T,K> ResponseEntity<T> post(final URI uri, final HttpHeaders httpHeaders, final Class<T> responseType, final K body, final Class<K> bodyType) {
-        final RequestEntity<K> request = oAuth2Grant.getRequest(uri, httpHeaders, HttpMethod.POST, body, bodyType);
-        return exchange(request, responseType);
+        return exchange(HttpMethod.POST, uri, () -> oAuth2Grant.getRequest(uri, httpHeaders, HttpMethod.POST, body, bodyType), responseType);
+    }
+
+    /**
+     * @see #getAsync(URI, HttpHeaders, Class)
+     */
+    public <T,K> CompletableFuture<ResponseEntity<T>> postAsync(final URI uri, final HttpHeaders httpHeaders, final Class<T> responseType, final K body, final Class<K> bodyType) {
+        return exchangeAsync(HttpMethod.POST, uri, () -> oAuth2Grant.getRequest(uri, httpHeaders, HttpMethod.POST, body, bodyType), responseType);
     }
 
     public OAuth2Grant getOAuth2Grant() {
         return oAuth2Grant;
     }
 
-    private <T> ResponseEntity<T> exchange(final RequestEntity requestEntity, final Class<T> responseType) {
-        return restTemplate.exchange(requestEntity, responseType);
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor running the HTTP exchange of asynchronous calls, e.g. a virtual thread per task executor on
+     * JDK 21. There is no default, as blocking I/O on a shared pool such as the common fork join pool would starve its
+     * other users.
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    private <T> ResponseEntity<T> exchange(
+            final HttpMethod httpMethod,
+            final URI uri,
+            final Supplier<RequestEntity<?>> requestSupplier,
+            final Class<T> responseType) {
+        final RequestObservation observation = requestObserver.start(RequestObserver.REQUEST, httpMethod, uri);
+        return execute(prepare(requestSupplier, observation), responseType, observation);
+    }
+
+    private <T> CompletableFuture<ResponseEntity<T>> exchangeAsync(
+            final HttpMethod httpMethod,
+            final URI uri,
+            final Supplier<RequestEntity<?>> requestSupplier,
+            final Class<T> responseType) {
+        state(executor != null, "No executor for asynchronous calls set");
+        final RequestObservation observation = requestObserver.start(RequestObserver.REQUEST, httpMethod, uri);
+        final RequestEntity<?> requestEntity;
+        try {
+            requestEntity = prepare(requestSupplier, observation);
+        } catch (final RuntimeException e) {
+            final CompletableFuture<ResponseEntity<T>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return CompletableFuture.supplyAsync(() -> execute(requestEntity, responseType, observation), executor);
+    }
+
+    private RequestEntity<?> prepare(final Supplier<RequestEntity<?>> requestSupplier, final RequestObservation observation) {
+        final RequestObservation parent = RequestObservations.open(observation);
+        boolean prepared = false;
+        try {
+            final long start = System.nanoTime();
+            final RequestEntity<?> requestEntity = requestSupplier.get();
+            observation.record(RequestPhase.TOKEN_ACQUISITION, System.nanoTime() - start);
+            prepared = true;
+            return requestEntity;
+        } catch (final RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            RequestObservations.restore(parent);
+            if (!prepared) {
+                observation.stop();
+            }
+        }
+    }
+
+    private <T> ResponseEntity<T> execute(
+            final RequestEntity<?> requestEntity,
+            final Class<T> responseType,
+            final RequestObservation observation) {
+        final RequestObservation parent = RequestObservations.open(observation);
+        try {
+            return RequestObservations.exchange(restTemplate, requestEntity, responseType, observation);
+        } catch (final RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            RequestObservations.restore(parent);
+            observation.stop();
+        }
     }
 }
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.util.Assert.isTrue;
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Bounded {@link UserTokenService} for large numbers of users. Tokens are spread over independently locked
+ * stripes, each evicting its least recently used entry once full. Entries are dropped after the configured
+ * time to live even if the token itself has not expired yet.
+ */
+public class StripedUserTokenService implements UserTokenService {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 500_000;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
+    // users hashing to the same stripe evict each other, so stripes must not get too small
+    private static final int MIN_STRIPE_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final long timeToLiveNanos;
+
+    public StripedUserTokenService() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    public StripedUserTokenService(final int maximumSize, final Duration timeToLive) {
+        this(maximumSize, timeToLive, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public StripedUserTokenService(final int maximumSize, final Duration timeToLive, final int concurrencyLevel) {
+        isTrue(maximumSize > 0, "Maximum size must be positive");
+        notNull(timeToLive, "Time to live may not be null");
+        isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "Time to live must be positive");
+        isTrue(concurrencyLevel > 0, "Concurrency level must be positive");
+
+        int stripeCount = 1;
+        while (stripeCount < concurrencyLevel && (stripeCount << 1) <= maximumSize / MIN_STRIPE_CAPACITY) {
+            stripeCount <<= 1;
+        }
+
+        // the remainder is spread over the first stripes, so that the capacities add up to exactly maximumSize
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(maximumSize / stripeCount + (i < maximumSize % stripeCount ? 1 : 0));
+        }
+        this.mask = stripeCount - 1;
+        this.timeToLiveNanos = timeToLive.toNanos();
+    }
+
+    @Override
+    public UserToken getUserToken(final String username) {
+        if (username == null) {
+            return null;
+        }
+
+        final Stripe stripe = stripeFor(username);
+        stripe.lock.lock();
+        try {
+            final Entry entry = stripe.entries.get(username);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.nanoTime())) {
+                stripe.entries.remove(username);
+                return null;
+            }
+            return entry.userToken;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void setUserToken(final String username, final UserToken userToken) {
+        notNull(username, "Username may not be null");
+        notNull(userToken, "User token may not be null or empty");
+
+        final Entry entry = new Entry(userToken, System.nanoTime() + timeToLiveNanos);
+        final Stripe stripe = stripeFor(username);
+        stripe.lock.lock();
+        try {
+            stripe.put(username, entry);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(final String username) {
+        final int hash = username.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static final class Entry {
+
+        private final UserToken userToken;
+        private final long expiresAtNanos;
+
+        private Entry(final UserToken userToken, final long expiresAtNanos) {
+            this.userToken = userToken;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(final long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0 || userToken.isExpired();
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        // access ordered, so that the eldest entry is the least recently used one
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        private Stripe(final int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void put(final String username, final Entry entry) {
+            entries.put(username, entry);
+            final Iterator<Entry> iterator = entries.values().iterator();
+            final Entry eldest = iterator.next();
+            if (entries.size() > capacity || eldest.isExpired(System.nanoTime())) {
+                iterator.remove();
+            }
+        }
+    }
+}
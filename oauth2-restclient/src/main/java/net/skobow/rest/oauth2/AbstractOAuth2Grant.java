@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2;
+
+import net.skobow.rest.HeadersEnhancer;
+import net.skobow.rest.UserToken;
+import net.skobow.rest.UserTokenService;
+import net.skobow.rest.observation.RequestObservation;
+import net.skobow.rest.observation.RequestObservations;
+import net.skobow.rest.observation.RequestObserver;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * Base class of grants authenticating the client at the token endpoint with client id and secret.
+ */
+public abstract class AbstractOAuth2Grant implements OAuth2Grant, DisposableBean {
+
+    private final String clientId;
+    private final char[] clientSecret;
+    private final String scope;
+    private final URI tokenUri;
+    private final RestTemplate restTemplate;
+    private final UserTokenService userTokenService;
+    private final AccessTokenDecoder accessTokenDecoder;
+
+    private HeadersEnhancer authorizationHeadersEnhancer;
+    private HeadersEnhancer requestHeadersEnhancer;
+    private RequestObserver requestObserver = RequestObserver.NOOP;
+
+    protected AbstractOAuth2Grant(
+            final String clientId,
+            final char[] clientSecret,
+            final String scope,
+            final URI tokenUri,
+            final RestTemplate restTemplate,
+            final UserTokenService userTokenService,
+            final AccessTokenDecoder accessTokenDecoder) {
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.scope = scope;
+        this.tokenUri = tokenUri;
+        this.restTemplate = restTemplate;
+        this.userTokenService = userTokenService;
+        this.accessTokenDecoder = accessTokenDecoder;
+    }
+
+    @Override
+    public RequestEntity getRequest(final URI uri, final HttpHeaders httpHeaders, final HttpMethod httpMethod) {
+        return new RequestEntity(getHeaders(httpHeaders), httpMethod, uri);
+    }
+
+    @Override
+    public <T> RequestEntity<T> getRequest(final URI uri, final HttpHeaders httpHeaders, final HttpMethod httpMethod, final T body, final Class<T> type) {
+        return new RequestEntity<>(body, getHeaders(httpHeaders), httpMethod, uri, type);
+    }
+
+    /**
+     * Returns a valid token for the current call, fetching a new one from the token endpoint if necessary.
+     */
+    protected abstract UserToken getUserToken();
+
+    protected HttpHeaders getHeaders(final HttpHeaders httpHeaders) {
+        final UserToken userToken = getUserToken();
+
+        final HttpHeaders headers = httpHeaders != null
+                ? httpHeaders
+                : new HttpHeaders();
+
+        headers.setBearerAuth(userToken.getAccessToken());
+
+        if (requestHeadersEnhancer != null) {
+            requestHeadersEnhancer.enhance(headers);
+        }
+
+        return headers;
+    }
+
+    /**
+     * Requests a token of the given grant type, authenticating with the client credentials. Grant specific parameters
+     * are added to the request body.
+     */
+    protected UserToken requestToken(final String grantType, final MultiValueMap<String, String> parameters) {
+        final MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("grant_type", grantType);
+        body.add("client_id", clientId);
+        body.add("client_secret", new String(clientSecret));
+        body.addAll(parameters);
+        body.add("scope", scope);
+
+        final ResponseEntity responseEntity = exchangeForToken(body);
+        return accessTokenDecoder.decode(responseEntity);
+    }
+
+    private ResponseEntity<Object> exchangeForToken(final MultiValueMap<String, String> body) {
+        final RequestObservation observation = requestObserver.start(RequestObserver.TOKEN_REQUEST, HttpMethod.POST, tokenUri);
+        final RequestObservation parent = RequestObservations.open(observation);
+        try {
+            final RequestEntity<MultiValueMap<String, String>> requestEntity = new RequestEntity<>(body, getAuthorizationHeaders(), HttpMethod.POST, tokenUri);
+            return RequestObservations.exchange(restTemplate, requestEntity, Object.class, observation);
+        } catch (final RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            RequestObservations.restore(parent);
+            observation.stop();
+        }
+    }
+
+    protected HttpHeaders getAuthorizationHeaders() {
+        final HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        if (authorizationHeadersEnhancer != null) {
+            authorizationHeadersEnhancer.enhance(httpHeaders);
+        }
+        return httpHeaders;
+    }
+
+    protected String getClientId() {
+        return clientId;
+    }
+
+    protected UserTokenService getUserTokenService() {
+        return userTokenService;
+    }
+
+    @Override
+    public void destroy() {
+        Arrays.fill(clientSecret, '0');
+    }
+
+    @Override
+    public HeadersEnhancer getAuthorizationHeadersEnhancer() {
+        return authorizationHeadersEnhancer;
+    }
+
+    @Override
+    public void setAuthorizationHeadersEnhancer(final HeadersEnhancer authorizationHeadersEnhancer) {
+        this.authorizationHeadersEnhancer = authorizationHeadersEnhancer;
+    }
+
+    @Override
+    public HeadersEnhancer getRequestHeadersEnhancer() {
+        return requestHeadersEnhancer;
+    }
+
+    @Override
+    public void setRequestHeadersEnhancer(final HeadersEnhancer requestHeadersEnhancer) {
+        this.requestHeadersEnhancer = requestHeadersEnhancer;
+    }
+
+    public RequestObserver getRequestObserver() {
+        return requestObserver;
+    }
+
+    public void setRequestObserver(final RequestObserver requestObserver) {
+        this.requestObserver = requestObserver != null
+                ? requestObserver
+                : RequestObserver.NOOP;
+    }
+}
@@ -24,34 +24,18 @@
 
 package net.skobow.rest.oauth2;
 
-import net.skobow.rest.HeadersEnhancer;
 import net.skobow.rest.UserToken;
 import net.skobow.rest.UserTokenService;
-import org.springframework.beans.factory.DisposableBean;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.RequestEntity;
-import org.springframework.http.ResponseEntity;
 import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
-import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class ClientCredentialsGrant implements OAuth2Grant, DisposableBean {
+public class ClientCredentialsGrant extends AbstractOAuth2Grant {
 
-    private final String clientId;
-    private final char[] clientSecret;
-    private final String scope;
-    private final URI tokenUri;
-    private final RestTemplate restTemplate;
-    private final UserTokenService userTokenService;
-    private final AccessTokenDecoder accessTokenDecoder;
-
-    private HeadersEnhancer authorizationHeadersEnhancer;
-    private HeadersEnhancer requestHeadersEnhancer;
+    // a lock rather than synchronized so that virtual threads waiting for a refresh do not pin their carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
 
     public ClientCredentialsGrant(
             final String clientId,
@@ -61,85 +45,28 @@ public class ClientCredentialsGrant implements OAuth2Grant, DisposableBean {
             final RestTemplate restTemplate,
             final UserTokenService userTokenService,
             final AccessTokenDecoder accessTokenDecoder) {
-        this.clientId = clientId;
-        this.clientSecret = clientSecret;
-        this.scope = scope;
-        this.tokenUri = tokenUri;
-        this.restTemplate = restTemplate;
-        this.userTokenService = userTokenService;
-        this.accessTokenDecoder = accessTokenDecoder;
-    }
-
-    @Override
-    public RequestEntity getRequest(final URI uri, final HttpHeaders httpHeaders, final HttpMethod httpMethod) {
-        return new RequestEntity(getHeaders(httpHeaders), httpMethod, uri);
+        super(clientId, clientSecret, scope, tokenUri, restTemplate, userTokenService, accessTokenDecoder);
     }
 
     @Override
-    public <T> RequestEntity<T> getRequest(final URI uri, final HttpHeaders httpHeaders, final HttpMethod httpMethod, final T body, final Class<T> type) {
-        return new RequestEntity<>(body, getHeaders(httpHeaders), httpMethod, uri, type);
-    }
-
-    private HttpHeaders getHeaders(final HttpHeaders httpHeaders) {
-        UserToken userToken = userTokenService.getUserToken(clientId);
-        if (userToken == null || userToken.isExpired()) {
-            userToken = getAccessToken();
-            userTokenService.setUserToken(clientId, userToken);
+    protected UserToken getUserToken() {
+        final UserTokenService userTokenService = getUserTokenService();
+        final UserToken userToken = userTokenService.getUserToken(getClientId());
+        if (userToken != null && !userToken.isExpired()) {
+            return userToken;
         }
 
-        final HttpHeaders headers = httpHeaders != null
-                ? httpHeaders
-                : new HttpHeaders();
-
-        headers.setBearerAuth(userToken.getAccessToken());
-
-        if (requestHeadersEnhancer != null) {
-            requestHeadersEnhancer.enhance(headers);
+        refreshLock.lock();
+        try {
+            // another thread may have refreshed the token while this one was waiting for the lock
+            UserToken refreshedToken = userTokenService.getUserToken(getClientId());
+            if (refreshedToken == null || refreshedToken.isExpired()) {
+                refreshedToken = requestToken("client_credentials", new LinkedMultiValueMap<>());
+                userTokenService.setUserToken(getClientId(), refreshedToken);
+            }
+            return refreshedToken;
+        } finally {
+            refreshLock.unlock();
         }
-
-        return headers;
-    }
-
-    private UserToken getAccessToken() {
-
-        final MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
-        body.add("grant_type", "client_credentials");
-        body.add("client_id", clientId);
-        body.add("client_secret", new String(clientSecret));
-        body.add("scope", scope);
-
-        final HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-        if (authorizationHeadersEnhancer != null) {
-            authorizationHeadersEnhancer.enhance(httpHeaders);
-        }
-
-        final RequestEntity<MultiValueMap<String, String>> requestEntity = new RequestEntity<>(body, httpHeaders, HttpMethod.POST, tokenUri);
-        final ResponseEntity responseEntity = restTemplate.exchange(requestEntity, Object.class);
-        return accessTokenDecoder.decode(responseEntity);
-    }
-
-    public void destroy() {
-        Arrays.fill(clientSecret, '0');
-    }
-
-    @Override
-    public HeadersEnhancer getAuthorizationHeadersEnhancer() {
-        return authorizationHeadersEnhancer;
-    }
-
-    @Override
-    public void setAuthorizationHeadersEnhancer(final HeadersEnhancer authorizationHeadersEnhancer) {
-        this.authorizationHeadersEnhancer = authorizationHeadersEnhancer;
-    }
-
-    @Override
-    public HeadersEnhancer getRequestHeadersEnhancer() {
-        return requestHeadersEnhancer;
-    }
-
-    @Override
-    public void setRequestHeadersEnhancer(final HeadersEnhancer requestHeadersEnhancer) {
-        this.requestHeadersEnhancer = requestHeadersEnhancer;
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2;
+
+import net.skobow.rest.UserContext;
+import net.skobow.rest.UserContextResolver;
+import net.skobow.rest.UserToken;
+import net.skobow.rest.UserTokenService;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * OAuth 2.0 Token Exchange (RFC 8693) grant calling APIs on behalf of the user resolved by a
+ * {@link UserContextResolver}. Tokens are cached per user; concurrent refreshes for the same user share a single
+ * token request while refreshes for different users run in parallel.
+ */
+public class TokenExchangeGrant extends AbstractOAuth2Grant {
+
+    public static final String GRANT_TYPE = "urn:ietf:params:oauth:grant-type:token-exchange";
+    public static final String ACCESS_TOKEN_TYPE = "urn:ietf:params:oauth:token-type:access_token";
+
+    private final UserContextResolver userContextResolver;
+
+    private final ConcurrentMap<String, CompletableFuture<UserToken>> pendingRequests = new ConcurrentHashMap<>();
+
+    public TokenExchangeGrant(
+            final String clientId,
+            final char[] clientSecret,
+            final String scope,
+            final URI tokenUri,
+            final RestTemplate restTemplate,
+            final UserTokenService userTokenService,
+            final AccessTokenDecoder accessTokenDecoder,
+            final UserContextResolver userContextResolver) {
+        super(clientId, clientSecret, scope, tokenUri, restTemplate, userTokenService, accessTokenDecoder);
+        this.userContextResolver = userContextResolver;
+    }
+
+    @Override
+    protected UserToken getUserToken() {
+        final UserContext userContext = userContextResolver.resolve();
+        notNull(userContext, "No user context available for token exchange");
+
+        final UserToken userToken = getUserTokenService().getUserToken(userContext.getUsername());
+        if (userToken != null && !userToken.isExpired()) {
+            return userToken;
+        }
+        return refreshUserToken(userContext);
+    }
+
+    private UserToken refreshUserToken(final UserContext userContext) {
+        final String username = userContext.getUsername();
+        final UserTokenService userTokenService = getUserTokenService();
+        final CompletableFuture<UserToken> pendingRequest = new CompletableFuture<>();
+        final CompletableFuture<UserToken> existingRequest = pendingRequests.putIfAbsent(username, pendingRequest);
+        if (existingRequest != null) {
+            return await(existingRequest);
+        }
+
+        try {
+            // another thread may have stored a fresh token between the cache lookup and registering this request
+            UserToken userToken = userTokenService.getUserToken(username);
+            if (userToken == null || userToken.isExpired()) {
+                userToken = getAccessToken(userContext);
+                userTokenService.setUserToken(username, userToken);
+            }
+            pendingRequest.complete(userToken);
+            return userToken;
+        } catch (final Throwable e) {
+            // complete on errors as well, otherwise threads waiting for this request would block forever
+            pendingRequest.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingRequests.remove(username, pendingRequest);
+        }
+    }
+
+    private UserToken getAccessToken(final UserContext userContext) {
+        final MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
+        parameters.add("subject_token", userContext.getSubjectToken());
+        parameters.add("subject_token_type", ACCESS_TOKEN_TYPE);
+        parameters.add("requested_token_type", ACCESS_TOKEN_TYPE);
+
+        return requestToken(GRANT_TYPE, parameters);
+    }
+
+    private static UserToken await(final CompletableFuture<UserToken> request) {
+        try {
+            return request.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
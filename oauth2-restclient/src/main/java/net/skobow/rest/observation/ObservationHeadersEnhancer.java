@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.observation;
+
+import net.skobow.rest.HeadersEnhancer;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Propagates the trace context of the current observation and delegates to an optional further enhancer.
+ */
+public class ObservationHeadersEnhancer implements HeadersEnhancer {
+
+    private final HeadersEnhancer delegate;
+
+    public ObservationHeadersEnhancer() {
+        this(null);
+    }
+
+    public ObservationHeadersEnhancer(final HeadersEnhancer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void enhance(final HttpHeaders httpHeaders) {
+        RequestObservations.current().propagate(httpHeaders);
+        if (delegate != null) {
+            delegate.enhance(httpHeaders);
+        }
+    }
+}
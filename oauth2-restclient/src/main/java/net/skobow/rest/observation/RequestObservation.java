@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.observation;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A single observed call. Implementations may map to a tracing span or a timer and are used by one thread at a time.
+ */
+public interface RequestObservation {
+
+    RequestObservation NOOP = new RequestObservation() {
+        @Override
+        public void record(final RequestPhase phase, final long nanos) {
+            // no-op
+        }
+
+        @Override
+        public void stop() {
+            // no-op
+        }
+    };
+
+    void record(RequestPhase phase, long nanos);
+
+    /**
+     * Adds trace context headers to an outgoing request.
+     */
+    default void propagate(final HttpHeaders httpHeaders) {
+        // no trace context by default
+    }
+
+    default void error(final Throwable error) {
+        // ignored by default
+    }
+
+    void stop();
+}
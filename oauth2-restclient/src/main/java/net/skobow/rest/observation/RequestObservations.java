@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.observation;
+
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Keeps track of the observation of the call in progress on the current thread so that transport level hooks can
+ * contribute to it.
+ */
+public final class RequestObservations {
+
+    private static final ThreadLocal<RequestObservation> CURRENT = new ThreadLocal<>();
+
+    private RequestObservations() {
+    }
+
+    public static RequestObservation current() {
+        final RequestObservation observation = CURRENT.get();
+        return observation != null
+                ? observation
+                : RequestObservation.NOOP;
+    }
+
+    /**
+     * Makes the given observation the current one and returns the previous one, which must be passed to
+     * {@link #restore(RequestObservation)} afterwards.
+     */
+    public static RequestObservation open(final RequestObservation observation) {
+        final RequestObservation previous = CURRENT.get();
+        CURRENT.set(observation);
+        return previous;
+    }
+
+    public static void restore(final RequestObservation previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Same as {@link RestTemplate#exchange(RequestEntity, Class)} but records the execution and response processing
+     * phases separately. Execution is recorded for failed calls as well.
+     */
+    public static <T> ResponseEntity<T> exchange(
+            final RestTemplate restTemplate,
+            final RequestEntity<?> requestEntity,
+            final Class<T> responseType,
+            final RequestObservation observation) {
+        final RequestCallback requestCallback = restTemplate.httpEntityCallback(requestEntity, responseType);
+        final ResponseExtractor<ResponseEntity<T>> responseExtractor = restTemplate.responseEntityExtractor(responseType);
+
+        final long start = System.nanoTime();
+        // the response extractor is not invoked for error responses, so execution is recorded afterwards in that case
+        final boolean[] executionRecorded = new boolean[1];
+        try {
+            return restTemplate.execute(requestEntity.getUrl(), requestEntity.getMethod(), requestCallback, response -> {
+                final long processingStart = System.nanoTime();
+                observation.record(RequestPhase.EXECUTION, processingStart - start);
+                executionRecorded[0] = true;
+                try {
+                    return responseExtractor.extractData(response);
+                } finally {
+                    observation.record(RequestPhase.RESPONSE_PROCESSING, System.nanoTime() - processingStart);
+                }
+            });
+        } finally {
+            if (!executionRecorded[0]) {
+                observation.record(RequestPhase.EXECUTION, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.observation;
+
+/**
+ * Phases a call is broken down into. Transport phases are only recorded if the underlying HTTP client reports them.
+ */
+public enum RequestPhase {
+    /** Building the request including obtaining an access token from the cache or the token endpoint. */
+    TOKEN_ACQUISITION,
+    /** Waiting for a connection from the pool. */
+    CONNECTION_LEASE,
+    /** Name resolution, TCP connect and TLS handshake of a new connection. */
+    CONNECT,
+    /** Sending the request and waiting for the response headers. */
+    SERVER,
+    /** Everything from handing the request to the transport until the response headers are available. */
+    EXECUTION,
+    /** Reading and deserializing the response body. */
+    RESPONSE_PROCESSING
+}
@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.observation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.springframework.util.Assert.notNull;
+
+/**
+ * Logs a per phase timing breakdown of every call taking longer than the given threshold.
+ */
+public class SlowRequestLogger implements RequestObserver {
+
+    private static final Log LOG = LogFactory.getLog(SlowRequestLogger.class);
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    private final long thresholdNanos;
+    private final Consumer<String> logger;
+
+    public SlowRequestLogger(final Duration threshold) {
+        this(threshold, LOG::warn);
+    }
+
+    SlowRequestLogger(final Duration threshold, final Consumer<String> logger) {
+        notNull(threshold, "Threshold may not be null");
+        this.thresholdNanos = threshold.toNanos();
+        this.logger = logger;
+    }
+
+    @Override
+    public RequestObservation start(final String name, final HttpMethod httpMethod, final URI uri) {
+        return new TimingObservation(name, httpMethod, uri);
+    }
+
+    private final class TimingObservation implements RequestObservation {
+
+        private final String name;
+        private final HttpMethod httpMethod;
+        private final URI uri;
+        private final long start = System.nanoTime();
+        private final long[] durations = new long[PHASES.length];
+        private Throwable error;
+
+        private TimingObservation(final String name, final HttpMethod httpMethod, final URI uri) {
+            this.name = name;
+            this.httpMethod = httpMethod;
+            this.uri = uri;
+        }
+
+        @Override
+        public void record(final RequestPhase phase, final long nanos) {
+            durations[phase.ordinal()] += nanos;
+        }
+
+        @Override
+        public void error(final Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void stop() {
+            final long total = System.nanoTime() - start;
+            if (total >= thresholdNanos) {
+                logger.accept(format(total));
+            }
+        }
+
+        private String format(final long total) {
+            final StringBuilder message = new StringBuilder("Slow ")
+                    .append(name).append(' ')
+                    .append(httpMethod).append(' ')
+                    .append(uri).append(" took ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(total)).append(" ms (");
+            for (int i = 0; i < PHASES.length; i++) {
+                if (i > 0) {
+                    message.append(", ");
+                }
+                message.append(PHASES[i].name().toLowerCase(Locale.ROOT)).append('=')
+                        .append(TimeUnit.NANOSECONDS.toMillis(durations[i])).append(" ms");
+            }
+            message.append(')');
+            if (error != null) {
+                message.append(" failed with ").append(error);
+            }
+            return message.toString();
+        }
+    }
+}
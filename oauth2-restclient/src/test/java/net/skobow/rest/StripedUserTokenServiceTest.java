@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedUserTokenServiceTest {
+
+    private static final String USERNAME = "user";
+    private static final String ACCESS_TOKEN = "ACCESS_TOKEN";
+    private static final String REFRESH_TOKEN = "REFRESH_TOKEN";
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void tokens_should_be_stored_per_user() {
+        final StripedUserTokenService userTokenService = new StripedUserTokenService();
+        final UserToken firstToken = validToken();
+        final UserToken secondToken = validToken();
+
+        userTokenService.setUserToken(USERNAME + 1, firstToken);
+        userTokenService.setUserToken(USERNAME + 2, secondToken);
+
+        assertThat(userTokenService.getUserToken(USERNAME + 1)).isSameAs(firstToken);
+        assertThat(userTokenService.getUserToken(USERNAME + 2)).isSameAs(secondToken);
+        assertThat(userTokenService.getUserToken(USERNAME + 3)).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void size_should_be_bounded() {
+        final StripedUserTokenService userTokenService = new StripedUserTokenService(64, Duration.ofHours(1), 4);
+
+        for (int i = 0; i < 1000; i++) {
+            userTokenService.setUserToken(USERNAME + i, validToken());
+        }
+
+        assertThat(userTokenService.size()).isLessThanOrEqualTo(64);
+        assertThat(userTokenService.getUserToken(USERNAME + 999)).isNotNull();
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void size_should_not_exceed_maximum_size_below_concurrency_level() {
+        final StripedUserTokenService userTokenService = new StripedUserTokenService(3, Duration.ofHours(1), 64);
+
+        for (int i = 0; i < 100; i++) {
+            userTokenService.setUserToken(USERNAME + i, validToken());
+        }
+
+        assertThat(userTokenService.size()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void small_caches_should_not_be_split_into_tiny_stripes() {
+        final StripedUserTokenService userTokenService = new StripedUserTokenService(100, Duration.ofHours(1));
+
+        for (int i = 0; i < 16; i++) {
+            userTokenService.setUserToken(USERNAME + i, validToken());
+        }
+
+        assertThat(userTokenService.size()).isEqualTo(16);
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void stripe_capacities_should_add_up_to_maximum_size() {
+        final StripedUserTokenService userTokenService = new StripedUserTokenService(103, Duration.ofHours(1));
+
+        for (int i = 0; i < 1000; i++) {
+            userTokenService.setUserToken(USERNAME + i, validToken());
+        }
+
+        assertThat(userTokenService.size()).isEqualTo(103);
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void entries_should_be_evicted_after_time_to_live() throws InterruptedException {
+        final StripedUserTokenService userTokenService = new StripedUserTokenService(64, Duration.ofMillis(10));
+        userTokenService.setUserToken(USERNAME, validToken());
+
+        Thread.sleep(20);
+
+        assertThat(userTokenService.getUserToken(USERNAME)).isNull();
+        assertThat(userTokenService.size()).isZero();
+    }
+
+    private static UserToken validToken() {
+        return new UserToken(ACCESS_TOKEN, REFRESH_TOKEN, "", LocalDateTime.now().plusDays(1));
+    }
+}
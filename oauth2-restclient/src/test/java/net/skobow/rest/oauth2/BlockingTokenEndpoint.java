@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Token endpoint that counts token requests per key and holds the blocked one until released, so that tests can
+ * keep a token refresh in flight while other threads ask for the same token.
+ */
+class BlockingTokenEndpoint implements ClientHttpRequestFactory {
+
+    static final long TIMEOUT_SECONDS = 5;
+
+    private static final String ANY = "";
+
+    private final Function<String, String> requestKey;
+    private final String blockedKey;
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final CountDownLatch blockedRequestStarted = new CountDownLatch(1);
+    private final CountDownLatch blockedRequestReleased = new CountDownLatch(1);
+
+    /**
+     * Blocks every token request.
+     */
+    BlockingTokenEndpoint() {
+        this(body -> ANY, ANY);
+    }
+
+    /**
+     * Blocks the token requests whose form body maps to the given key.
+     */
+    BlockingTokenEndpoint(final Function<String, String> requestKey, final String blockedKey) {
+        this.requestKey = requestKey;
+        this.blockedKey = blockedKey;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(final URI uri, final HttpMethod httpMethod) {
+        return new MockClientHttpRequest(httpMethod, uri) {
+            @Override
+            protected ClientHttpResponse executeInternal() throws IOException {
+                final String key = requestKey.apply(getBodyAsString());
+                requestCounts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+                if (blockedKey.equals(key)) {
+                    blockedRequestStarted.countDown();
+                    awaitRelease();
+                }
+                return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+            }
+        };
+    }
+
+    boolean awaitBlockedRequest() throws InterruptedException {
+        return blockedRequestStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    void release() {
+        blockedRequestReleased.countDown();
+    }
+
+    int getRequestCount() {
+        return getRequestCount(ANY);
+    }
+
+    int getRequestCount(final String key) {
+        final AtomicInteger count = requestCounts.get(key);
+        return count != null
+                ? count.get()
+                : 0;
+    }
+
+    /**
+     * Starts the call on the given number of threads at once and releases the blocked token request once it was made.
+     */
+    <T> List<T> callConcurrently(final int threads, final Callable<T> call) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    return call.call();
+                }));
+            }
+
+            if (!awaitBlockedRequest()) {
+                throw new AssertionError("No blocked token request was made");
+            }
+            release();
+
+            final List<T> results = new ArrayList<>();
+            for (final Future<T> future : futures) {
+                results.add(future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitRelease() throws IOException {
+        try {
+            if (!blockedRequestReleased.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Token request was not released");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
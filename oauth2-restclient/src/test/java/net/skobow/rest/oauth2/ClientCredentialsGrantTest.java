@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2;
+
+import net.skobow.rest.InMemoryUserTokenService;
+import net.skobow.rest.UserToken;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientCredentialsGrantTest {
+
+    private static final String CLIENT_ID = "client";
+    private static final String ACCESS_TOKEN = "access-token";
+    private static final int THREADS = 16;
+
+    private final BlockingTokenEndpoint tokenEndpoint = new BlockingTokenEndpoint();
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void concurrent_requests_without_a_token_should_request_it_once() throws Exception {
+        assertSingleTokenRequest(new InMemoryUserTokenService());
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void concurrent_requests_with_an_expired_token_should_refresh_it_once() throws Exception {
+        final InMemoryUserTokenService userTokenService = new InMemoryUserTokenService();
+        userTokenService.setUserToken(CLIENT_ID, new UserToken("expired", null, "bearer", LocalDateTime.now().minusMinutes(1)));
+
+        assertSingleTokenRequest(userTokenService);
+    }
+
+    private void assertSingleTokenRequest(final InMemoryUserTokenService userTokenService) throws Exception {
+        final ClientCredentialsGrant grant = new ClientCredentialsGrant(
+                CLIENT_ID,
+                "secret".toCharArray(),
+                "scope",
+                URI.create("http://localhost/token"),
+                new RestTemplate(tokenEndpoint),
+                userTokenService,
+                httpResponse -> new UserToken(ACCESS_TOKEN, null, "bearer", LocalDateTime.now().plusHours(1)));
+
+        final List<HttpHeaders> headers = tokenEndpoint.callConcurrently(
+                THREADS, () -> grant.getRequest(URI.create("http://localhost/"), null, HttpMethod.GET).getHeaders());
+
+        for (final HttpHeaders httpHeaders : headers) {
+            assertThat(httpHeaders.getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer " + ACCESS_TOKEN);
+        }
+        assertThat(tokenEndpoint.getRequestCount()).isEqualTo(1);
+    }
+}
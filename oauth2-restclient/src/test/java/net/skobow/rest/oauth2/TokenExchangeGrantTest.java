@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.oauth2;
+
+import net.skobow.rest.InMemoryUserTokenService;
+import net.skobow.rest.OAuth2RestClient;
+import net.skobow.rest.UserContext;
+import net.skobow.rest.UserToken;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.RequestEntity;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static net.skobow.rest.oauth2.BlockingTokenEndpoint.TIMEOUT_SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class TokenExchangeGrantTest {
+
+    private static final String CLIENT_ID = "client";
+    private static final String CLIENT_SECRET = "secret";
+    private static final String SCOPE = "scope";
+    private static final String ALICE = "alice";
+    private static final String BOB = "bob";
+    private static final String HTTP_LOCALHOST_TOKEN = "http://localhost/token";
+    private static final String HTTP_LOCALHOST = "http://localhost/";
+    private static final String BEARER = "Bearer ";
+    private static final int THREADS = 16;
+
+    private final ThreadLocal<UserContext> currentUser = new ThreadLocal<>();
+    private OAuth2RestClient client;
+    private MockRestServiceServer mockRestServiceServer;
+    private final BlockingTokenEndpoint tokenEndpoint = new BlockingTokenEndpoint(
+            body -> body.contains("subject_token=" + subjectToken(ALICE)) ? ALICE : BOB, ALICE);
+
+    @Before
+    public void setUp() {
+        final RestTemplate restTemplate = new RestTemplate();
+        mockRestServiceServer = MockRestServiceServer.bindTo(restTemplate).build();
+        client = new OAuth2RestClient(restTemplate, createGrant(restTemplate, new InMemoryUserTokenService()));
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void tokens_should_be_exchanged_and_cached_per_user() {
+        expectTokenExchange(ALICE);
+        expectResourceCall(ALICE);
+        expectResourceCall(ALICE);
+        expectTokenExchange(BOB);
+        expectResourceCall(BOB);
+
+        callAs(ALICE);
+        callAs(ALICE);
+        callAs(BOB);
+
+        mockRestServiceServer.verify();
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void async_calls_should_exchange_the_token_of_the_calling_user() throws Exception {
+        expectTokenExchange(ALICE);
+        expectResourceCall(ALICE);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        client.setExecutor(executor);
+        currentUser.set(new UserContext(ALICE, subjectToken(ALICE)));
+        try {
+            client.getAsync(URI.create(HTTP_LOCALHOST), null, Object.class).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            currentUser.remove();
+            executor.shutdownNow();
+        }
+
+        mockRestServiceServer.verify();
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void concurrent_refreshes_for_the_same_user_should_exchange_the_token_once() throws Exception {
+        final InMemoryUserTokenService userTokenService = new InMemoryUserTokenService();
+        userTokenService.setUserToken(ALICE, new UserToken("expired", null, "bearer", LocalDateTime.now().minusMinutes(1)));
+        final TokenExchangeGrant grant = createGrant(new RestTemplate(tokenEndpoint), userTokenService);
+
+        final List<HttpHeaders> headers = tokenEndpoint.callConcurrently(THREADS, () -> requestAs(grant, ALICE).getHeaders());
+
+        for (final HttpHeaders httpHeaders : headers) {
+            assertThat(httpHeaders.getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo(BEARER + exchangedToken(ALICE));
+        }
+        assertThat(tokenEndpoint.getRequestCount(ALICE)).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void refreshes_for_different_users_should_not_wait_for_each_other() throws Exception {
+        final TokenExchangeGrant grant = createGrant(new RestTemplate(tokenEndpoint), new InMemoryUserTokenService());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> alice = executor.submit(() -> requestAs(grant, ALICE));
+            assertThat(tokenEndpoint.awaitBlockedRequest()).isTrue();
+
+            // alice's exchange is still blocked while bob's completes
+            final Future<?> bob = executor.submit(() -> requestAs(grant, BOB));
+            bob.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertThat(alice.isDone()).isFalse();
+
+            tokenEndpoint.release();
+            alice.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(tokenEndpoint.getRequestCount(ALICE)).isEqualTo(1);
+        assertThat(tokenEndpoint.getRequestCount(BOB)).isEqualTo(1);
+    }
+
+    private TokenExchangeGrant createGrant(final RestTemplate restTemplate, final InMemoryUserTokenService userTokenService) {
+        return new TokenExchangeGrant(
+                CLIENT_ID,
+                CLIENT_SECRET.toCharArray(),
+                SCOPE,
+                URI.create(HTTP_LOCALHOST_TOKEN),
+                restTemplate,
+                userTokenService,
+                httpResponse -> new UserToken(exchangedToken(currentUser.get().getUsername()), null, "bearer", LocalDateTime.now().plusHours(1)),
+                currentUser::get);
+    }
+
+    private RequestEntity<?> requestAs(final TokenExchangeGrant grant, final String username) {
+        currentUser.set(new UserContext(username, subjectToken(username)));
+        try {
+            return grant.getRequest(URI.create(HTTP_LOCALHOST), null, HttpMethod.GET);
+        } finally {
+            currentUser.remove();
+        }
+    }
+
+    private void callAs(final String username) {
+        currentUser.set(new UserContext(username, subjectToken(username)));
+        try {
+            client.get(HTTP_LOCALHOST, Object.class);
+        } finally {
+            currentUser.remove();
+        }
+    }
+
+    private void expectTokenExchange(final String username) {
+        final MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", TokenExchangeGrant.GRANT_TYPE);
+        form.add("client_id", CLIENT_ID);
+        form.add("client_secret", CLIENT_SECRET);
+        form.add("subject_token", subjectToken(username));
+        form.add("subject_token_type", TokenExchangeGrant.ACCESS_TOKEN_TYPE);
+        form.add("requested_token_type", TokenExchangeGrant.ACCESS_TOKEN_TYPE);
+        form.add("scope", SCOPE);
+
+        mockRestServiceServer
+                .expect(requestTo(HTTP_LOCALHOST_TOKEN))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().formData(form))
+                .andRespond(withSuccess());
+    }
+
+    private void expectResourceCall(final String username) {
+        mockRestServiceServer
+                .expect(requestTo(HTTP_LOCALHOST))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, BEARER + exchangedToken(username)))
+                .andRespond(withSuccess());
+    }
+
+    private static String subjectToken(final String username) {
+        return "subject-" + username;
+    }
+
+    private static String exchangedToken(final String username) {
+        return "exchanged-" + username;
+    }
+}
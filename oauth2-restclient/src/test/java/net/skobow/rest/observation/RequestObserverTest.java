@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.observation;
+
+import net.skobow.rest.InMemoryUserTokenService;
+import net.skobow.rest.OAuth2RestClient;
+import net.skobow.rest.UserToken;
+import net.skobow.rest.oauth2.ClientCredentialsGrant;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class RequestObserverTest {
+
+    private static final String HTTP_LOCALHOST_TOKEN = "http://localhost/token";
+    private static final String HTTP_LOCALHOST = "http://localhost/";
+    private static final String TRACE_PARENT = "traceparent";
+
+    private final List<RecordingObservation> observations = new ArrayList<>();
+    private OAuth2RestClient client;
+    private MockRestServiceServer mockRestServiceServer;
+
+    @Before
+    public void setUp() {
+        final RestTemplate restTemplate = new RestTemplate();
+        mockRestServiceServer = MockRestServiceServer.bindTo(restTemplate).build();
+        final RequestObserver requestObserver = (name, httpMethod, uri) -> {
+            final RecordingObservation observation = new RecordingObservation(name);
+            observations.add(observation);
+            return observation;
+        };
+
+        final ClientCredentialsGrant grant = new ClientCredentialsGrant(
+                "client",
+                "secret".toCharArray(),
+                "scope",
+                URI.create(HTTP_LOCALHOST_TOKEN),
+                restTemplate,
+                new InMemoryUserTokenService(),
+                httpResponse -> new UserToken("token", null, "bearer", LocalDateTime.now().plusHours(1)));
+        grant.setRequestObserver(requestObserver);
+        grant.setAuthorizationHeadersEnhancer(new ObservationHeadersEnhancer());
+        grant.setRequestHeadersEnhancer(new ObservationHeadersEnhancer());
+
+        client = new OAuth2RestClient(restTemplate, grant, requestObserver);
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void phases_should_be_recorded_and_trace_headers_propagated() {
+        mockRestServiceServer
+                .expect(requestTo(HTTP_LOCALHOST_TOKEN))
+                .andExpect(header(TRACE_PARENT, RequestObserver.TOKEN_REQUEST))
+                .andRespond(withSuccess());
+        mockRestServiceServer
+                .expect(requestTo(HTTP_LOCALHOST))
+                .andExpect(header(TRACE_PARENT, RequestObserver.REQUEST))
+                .andRespond(withSuccess());
+
+        client.get(HTTP_LOCALHOST, Object.class);
+
+        mockRestServiceServer.verify();
+        assertThat(observations).hasSize(2);
+
+        final RecordingObservation request = observations.get(0);
+        assertThat(request.name).isEqualTo(RequestObserver.REQUEST);
+        assertThat(request.phases).contains(RequestPhase.TOKEN_ACQUISITION, RequestPhase.EXECUTION, RequestPhase.RESPONSE_PROCESSING);
+        assertThat(request.stopped).isTrue();
+
+        final RecordingObservation tokenRequest = observations.get(1);
+        assertThat(tokenRequest.name).isEqualTo(RequestObserver.TOKEN_REQUEST);
+        assertThat(tokenRequest.phases).contains(RequestPhase.EXECUTION, RequestPhase.RESPONSE_PROCESSING);
+        assertThat(tokenRequest.stopped).isTrue();
+
+        assertThat(RequestObservations.current()).isSameAs(RequestObservation.NOOP);
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void execution_should_be_recorded_for_error_responses() {
+        mockRestServiceServer
+                .expect(requestTo(HTTP_LOCALHOST_TOKEN))
+                .andRespond(withSuccess());
+        mockRestServiceServer
+                .expect(requestTo(HTTP_LOCALHOST))
+                .andRespond(withServerError());
+
+        assertThatThrownBy(() -> client.get(HTTP_LOCALHOST, Object.class)).isInstanceOf(HttpServerErrorException.class);
+
+        final RecordingObservation request = observations.get(0);
+        assertThat(request.phases).contains(RequestPhase.TOKEN_ACQUISITION, RequestPhase.EXECUTION);
+        assertThat(request.phases).doesNotContain(RequestPhase.RESPONSE_PROCESSING);
+        assertThat(request.error).isInstanceOf(HttpServerErrorException.class);
+        assertThat(request.stopped).isTrue();
+    }
+
+    private static final class RecordingObservation implements RequestObservation {
+
+        private final String name;
+        private final Set<RequestPhase> phases = EnumSet.noneOf(RequestPhase.class);
+        private Throwable error;
+        private boolean stopped;
+
+        private RecordingObservation(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void record(final RequestPhase phase, final long nanos) {
+            phases.add(phase);
+        }
+
+        @Override
+        public void propagate(final HttpHeaders httpHeaders) {
+            httpHeaders.set(TRACE_PARENT, name);
+        }
+
+        @Override
+        public void error(final Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 Sven Kobow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.skobow.rest.observation;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlowRequestLoggerTest {
+
+    private static final URI URI_LOCALHOST = URI.create("http://localhost/");
+
+    private final List<String> messages = new ArrayList<>();
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void slow_requests_should_be_logged_with_phase_breakdown() {
+        final RequestObservation observation = new SlowRequestLogger(Duration.ZERO, messages::add)
+                .start(RequestObserver.REQUEST, HttpMethod.GET, URI_LOCALHOST);
+        observation.record(RequestPhase.TOKEN_ACQUISITION, TimeUnit.MILLISECONDS.toNanos(12));
+        observation.record(RequestPhase.SERVER, TimeUnit.MILLISECONDS.toNanos(30));
+        observation.record(RequestPhase.SERVER, TimeUnit.MILLISECONDS.toNanos(5));
+        observation.stop();
+
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0))
+                .startsWith("Slow oauth2.client.request GET http://localhost/ took ")
+                .contains("token_acquisition=12 ms")
+                .contains("connection_lease=0 ms")
+                .contains("server=35 ms")
+                .endsWith(")");
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void errors_should_be_appended() {
+        final RequestObservation observation = new SlowRequestLogger(Duration.ZERO, messages::add)
+                .start(RequestObserver.TOKEN_REQUEST, HttpMethod.POST, URI_LOCALHOST);
+        observation.error(new IllegalStateException("boom"));
+        observation.stop();
+
+        assertThat(messages).hasSize(1);
+        assertThat(messages.get(0)).endsWith(" failed with java.lang.IllegalStateException: boom");
+    }
+
+    @Test
+    @SuppressWarnings("squid:S00100")
+    public void requests_below_threshold_should_not_be_logged() {
+        final RequestObservation observation = new SlowRequestLogger(Duration.ofHours(1), messages::add)
+                .start(RequestObserver.REQUEST, HttpMethod.GET, URI_LOCALHOST);
+        observation.record(RequestPhase.SERVER, TimeUnit.MILLISECONDS.toNanos(30));
+        observation.stop();
+
+        assertThat(messages).isEmpty();
+    }
+}